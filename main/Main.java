@@ -9,12 +9,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.SplittableRandom;
 
 public class Main {
     private static final int IMAGE_SIZE = 28;
     private static final int PIXEL_SIZE = 20;
 
     private static final int batchSize = 1000;
+    private static final int benchmarkRuns = 3;
 
     private JFrame frame;
     private JPanel canvas;
@@ -174,7 +176,7 @@ public class Main {
         }
     }    
 
-    public static void loadProgress() {
+    private static File chooseModelFile() {
         JFrame f = new JFrame();
         f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         f.pack();
@@ -185,8 +187,15 @@ public class Main {
         fileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
         int result = fileChooser.showOpenDialog(f);
 
-        if (result == JFileChooser.APPROVE_OPTION) {
-            File selectedFile = fileChooser.getSelectedFile();
+        if (result == JFileChooser.APPROVE_OPTION)
+            return fileChooser.getSelectedFile();
+        return null;
+    }
+
+    public static void loadProgress() {
+        File selectedFile = chooseModelFile();
+
+        if (selectedFile != null) {
             try {
                 NeuralNetwork NN = NeuralNetwork.loadNeuralNetwork(selectedFile.getAbsolutePath());
                 
@@ -197,23 +206,28 @@ public class Main {
         }
     }
 
-    public static NeuralNetwork learnModel(int epochs, int[] hiddenNeurons, double rate) {
-        NeuralNetwork NN = new NeuralNetwork(IMAGE_SIZE*IMAGE_SIZE, hiddenNeurons, 10, rate);
+    public static NeuralNetwork learnModel(int epochs, int[] hiddenNeurons, double rate, RandomService random) {
+        NeuralNetwork NN = new NeuralNetwork(IMAGE_SIZE*IMAGE_SIZE, hiddenNeurons, 10, rate, random);
         List<ImageData> trainData = new ArrayList<>();
 
         System.out.println("\nЗчитування зображень чисел...");
         trainData.addAll(ImageReader.readImagesFromPath("train", 60000));
         System.out.println("\nФайли оброблено успішно!\n");
 
+        System.out.println("Початок навчання моделі (зерно " + random.seed + ")...");
+        trainModel(NN, trainData, epochs, random.split());
+
+        return NN;
+    }
+
+    private static void trainModel(NeuralNetwork NN, List<ImageData> trainData, int epochs, SplittableRandom random) {
         int counter = 0;
         int e_counter = 1;
         int correct = 0;
         int wrong = 0;
 
-        System.out.println("Початок навчання моделі...");
-
         for (int j = 0; j < epochs*batchSize; j++) {
-            int randomImageIdx = (int) (Math.random() * 60000);
+            int randomImageIdx = random.nextInt(trainData.size());
             ImageData image = trainData.get(randomImageIdx);
 
             double[] pixels = new double[28 * 28];
@@ -250,8 +264,6 @@ public class Main {
 
             counter++;
         }
-
-        return NN;
     }
 
     public static void testModel(NeuralNetwork NN) {
@@ -290,10 +302,94 @@ public class Main {
         System.out.printf("\nТочність: %d%%\n", (int)((double)correct/10000.0*100.0));
     }
 
+    private static int evaluateModel(NeuralNetwork NN, List<ImageData> testData) {
+        int correct = 0;
+
+        for (ImageData image : testData) {
+            double[] pixels = new double[28 * 28];
+
+            int p = 0;
+            for (double[] y : image.pixels) {
+                for (double x : y) {
+                    pixels[p] = x;
+                    p++;
+                }
+            }
+
+            if (Utilities.getIndexOfLargest(NN.feedForward(pixels)) == image.number) correct++;
+        }
+
+        return correct;
+    }
+
+    private static long benchmarkModel(NeuralNetwork NN, List<ImageData> testData) {
+        long best = Long.MAX_VALUE;
+
+        for (int r = 0; r < benchmarkRuns; r++) {
+            long start = System.nanoTime();
+            evaluateModel(NN, testData);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        return best;
+    }
+
+    public static NeuralNetwork pruneModel(File modelFile, double sparsity, int epochs, RandomService random) throws IOException {
+        NeuralNetwork dense = NeuralNetwork.loadNeuralNetwork(modelFile.getAbsolutePath());
+        NeuralNetwork unpruned = NeuralNetwork.loadNeuralNetwork(modelFile.getAbsolutePath());
+        NeuralNetwork sparse = NeuralNetwork.loadNeuralNetwork(modelFile.getAbsolutePath());
+
+        // CSR без проріджування відділяє виграш від формату зберігання від виграшу від розрідженості.
+        unpruned.prune(0);
+        sparse.prune(sparsity);
+        System.out.printf("\nМодель проріджено: залишилось %d з %d ваг\n", sparse.countWeights(), dense.countWeights());
+        for (int l = 0; l < sparse.structure.length - 1; l++) {
+            System.out.printf("Шар %d: щільність %.2f%%\n", l + 1, sparse.layers[l].sparseWeights.density() * 100.0);
+        }
+
+        if (epochs > 0) {
+            List<ImageData> trainData = new ArrayList<>();
+
+            System.out.println("\nЗчитування зображень чисел...");
+            trainData.addAll(ImageReader.readImagesFromPath("train", 60000));
+            System.out.println("\nФайли оброблено успішно!\n");
+
+            System.out.println("Донавчання проріджених ваг (зерно " + random.seed + ")...");
+            trainModel(sparse, trainData, epochs, random.split());
+        }
+
+        System.out.println("\nЗчитування зображень чисел...");
+        List<ImageData> testData = new ArrayList<>();
+        testData.addAll(ImageReader.readImagesFromPath("test", 10000));
+        System.out.print("\n");
+
+        int denseCorrect = evaluateModel(dense, testData);
+        int unprunedCorrect = evaluateModel(unpruned, testData);
+        int sparseCorrect = evaluateModel(sparse, testData);
+        long denseTime = benchmarkModel(dense, testData);
+        long unprunedTime = benchmarkModel(unpruned, testData);
+        long sparseTime = benchmarkModel(sparse, testData);
+
+        double denseAccuracy = (double) denseCorrect / testData.size() * 100.0;
+        double unprunedAccuracy = (double) unprunedCorrect / testData.size() * 100.0;
+        double sparseAccuracy = (double) sparseCorrect / testData.size() * 100.0;
+        double denseMicros = denseTime / 1000.0 / testData.size();
+        double unprunedMicros = unprunedTime / 1000.0 / testData.size();
+        double sparseMicros = sparseTime / 1000.0 / testData.size();
+
+        System.out.println("\nПорівняння моделей на тестовому наборі:");
+        System.out.printf("Щільна модель:     ваг %8d; точність %6.2f%%; %8.2f мкс/зображення\n", dense.countWeights(), denseAccuracy, denseMicros);
+        System.out.printf("CSR, 0%% обнулено:  ваг %8d; точність %6.2f%%; %8.2f мкс/зображення\n", unpruned.countWeights(), unprunedAccuracy, unprunedMicros);
+        System.out.printf("Проріджена модель: ваг %8d; точність %6.2f%%; %8.2f мкс/зображення\n", sparse.countWeights(), sparseAccuracy, sparseMicros);
+        System.out.printf("Прискорення від проріджування (відносно CSR 0%%): %.2fx; Зміна точності: %+.2f%%\n", (double) unprunedTime / sparseTime, sparseAccuracy - denseAccuracy);
+
+        return sparse;
+    }
+
     public static void main(String[] args) {
         Scanner in = new Scanner(System.in);
         System.out.println("Оберіть варіант:");
-        System.out.println("1. Нова модель\n2. Завантажити модель\n3. Завантажити пусту модель\n0. Вийти\n");
+        System.out.println("1. Нова модель\n2. Завантажити модель\n3. Завантажити пусту модель\n4. Проріджити модель\n0. Вийти\n");
         System.out.print("Варіант роботи програми: ");
         double choice = in.nextInt();
 
@@ -332,9 +428,14 @@ public class Main {
                 }
             }
 
+            System.out.print("Зерно генератора випадкових чисел: ");
+            long seed = 0;
+            if (in.hasNextLong())
+                seed = in.nextLong();
+
             in.close();
 
-            NeuralNetwork NN = learnModel(epochs, hiddenNeurons, rate);
+            NeuralNetwork NN = learnModel(epochs, hiddenNeurons, rate, new RandomService(seed));
 
             System.out.println("Модель успішно навчена! Тестування...");
             testModel(NN);
@@ -344,10 +445,61 @@ public class Main {
             in.close();
             loadProgress();
         } else if (choice == 3) {
+            System.out.print("\nЗерно генератора випадкових чисел: ");
+            long seed = 0;
+            if (in.hasNextLong())
+                seed = in.nextLong();
+
             in.close();
             int[] hiddenNeurons = {32};
-            NeuralNetwork NN = new NeuralNetwork(IMAGE_SIZE*IMAGE_SIZE, hiddenNeurons, 10, 0.1);
+            NeuralNetwork NN = new NeuralNetwork(IMAGE_SIZE*IMAGE_SIZE, hiddenNeurons, 10, 0.1, new RandomService(seed));
             SwingUtilities.invokeLater(() -> new Main(NN));
+        } else if (choice == 4) {
+            System.out.print("\nРозрідженість (частка ваг, що обнуляються): ");
+            double sparsity = 0.9;
+            while (in.hasNextDouble()) {
+                double value = in.nextDouble();
+                if (value >= 0 && value < 1) {
+                    sparsity = value;
+                    break;
+                } else {
+                    System.out.println("Введіть число в межах [0, 1):");
+                }
+            }
+
+            System.out.printf("Кількість епох донавчання (по %d зображень, 0 - без донавчання): ", batchSize);
+            int epochs = 0;
+            while (in.hasNextInt()) {
+                int value = in.nextInt();
+                if (value >= 0) {
+                    epochs = value;
+                    break;
+                } else {
+                    System.out.println("Введіть невід'ємне число:");
+                }
+            }
+
+            long seed = 0;
+            if (epochs > 0) {
+                System.out.print("Зерно генератора випадкових чисел: ");
+                if (in.hasNextLong())
+                    seed = in.nextLong();
+            }
+
+            in.close();
+
+            File modelFile = chooseModelFile();
+            if (modelFile == null)
+                return;
+
+            try {
+                NeuralNetwork NN = pruneModel(modelFile, sparsity, epochs, new RandomService(seed));
+                SwingUtilities.invokeLater(() -> new Main(NN));
+            } catch (IOException e) {
+                System.err.println("Не вдалось завантажити модель: " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Не вдалось проріджити модель: " + e.getMessage());
+            }
         } else {
             in.close();
             System.out.println("\nВихід з програми...");
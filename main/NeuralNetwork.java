@@ -4,14 +4,25 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
 
 public class NeuralNetwork implements Serializable {
+    private static final long serialVersionUID = -4733833005930243544L;
+
+    private static final int PARALLEL_INIT_WEIGHTS = 1 << 16;
+
     Layer[] layers;
     int[] structure;
 
     public double lambda = 0.1;
 
     public NeuralNetwork(int inputNeurons, int[] hiddenNeurons, int outputNeurons, double rate) {
+        this(inputNeurons, hiddenNeurons, outputNeurons, rate, new RandomService());
+    }
+
+    public NeuralNetwork(int inputNeurons, int[] hiddenNeurons, int outputNeurons, double rate, RandomService random) {
         this.lambda = rate;
         
         this.layers = new Layer[hiddenNeurons.length + 2];
@@ -35,15 +46,24 @@ public class NeuralNetwork implements Serializable {
             }
 
             double limit = Math.sqrt(6.0 / (inputNeurons + outputNeurons));
-            for (int clw = 0; clw < cl_size; clw++) {
-                for (int nlw = 0; nlw < nl_size; nlw++) {
-                    weights[clw][nlw] = Math.random() * 2 * limit - limit;
+            SplittableRandom biasRandom = random.split();
+            for (int nlw = 0; nlw < nl_size; nlw++) {
+                biases[nlw] = biasRandom.nextDouble(-limit, limit);
+            }
 
-                    if (clw == 0) {
-                        biases[nlw] = Math.random() * 2 * limit - limit;
-                    }
+            // Кожен рядок ваг має власний потік, тож паралельне і послідовне заповнення
+            // дають однакові ваги.
+            SplittableRandom[] rowRandoms = random.split(cl_size);
+            IntStream rows = IntStream.range(0, cl_size);
+            if ((long) cl_size * nl_size >= PARALLEL_INIT_WEIGHTS)
+                rows = rows.parallel();
+
+            rows.forEach(clw -> {
+                SplittableRandom rowRandom = rowRandoms[clw];
+                for (int nlw = 0; nlw < nl_size; nlw++) {
+                    weights[clw][nlw] = rowRandom.nextDouble(-limit, limit);
                 }
-            }
+            });
 
             this.layers[l] = new Layer(neurons, weights, biases);
         }
@@ -63,6 +83,15 @@ public class NeuralNetwork implements Serializable {
             Layer currLayer = this.layers[l];
             Layer nextLayer = this.layers[l + 1];
 
+            if (currLayer.sparseWeights != null) {
+                currLayer.sparseWeights.multiply(currLayer.neurons, nextLayer.neurons);
+
+                for (int nl = 0; nl < nextLayer.neurons.length; nl++) {
+                    nextLayer.neurons[nl] = activation(nextLayer.neurons[nl] + currLayer.biases[nl]);
+                }
+                continue;
+            }
+
             for (int nl = 0; nl < nextLayer.neurons.length; nl++) {
                 nextLayer.neurons[nl] = 0;
 
@@ -98,6 +127,11 @@ public class NeuralNetwork implements Serializable {
                 }
             }
 
+            if (nextLayer.sparseWeights != null) {
+                gradients = sparseBackPropagation(currentLayer, nextLayer, gradients, this.structure[l - 1]);
+                continue;
+            }
+
             for (int cl = 0; cl < currentLayer.neurons.length; cl++) {
                 for (int nl = 0; nl < nextLayer.neurons.length; nl++) {
                     double gradient = gradients[cl];
@@ -125,6 +159,102 @@ public class NeuralNetwork implements Serializable {
         }
     }
 
+    // Оновлюються лише збережені ваги, тож проріджена маска не змінюється під час донавчання.
+    // Зміщення оновлюються так само, як і в щільному варіанті: кожне отримує накопичену суму
+    // внесків усіх нейронів до поточного включно.
+    private double[] sparseBackPropagation(Layer currentLayer, Layer nextLayer, double[] gradients, int nextSize) {
+        SparseMatrix weights = nextLayer.sparseWeights;
+
+        for (int cl = 0; cl < weights.rows; cl++) {
+            for (int k = weights.rowPointers[cl]; k < weights.rowPointers[cl + 1]; k++) {
+                weights.values[k] -= lambda * gradients[cl] * nextLayer.neurons[weights.columnIndices[k]];
+            }
+        }
+
+        double[] newGradients = new double[nextSize];
+        double biasShift = 0;
+        for (int cl = 0; cl < weights.rows; cl++) {
+            double sum = 0;
+
+            for (int k = weights.rowPointers[cl]; k < weights.rowPointers[cl + 1]; k++) {
+                int nl = weights.columnIndices[k];
+                double value = lambda * weights.values[k] * gradients[cl] * derivative(nextLayer.neurons[nl]);
+
+                newGradients[nl] += value;
+                sum += value;
+            }
+
+            biasShift += sum;
+            nextLayer.biases[cl] += biasShift;
+        }
+
+        return newGradients;
+    }
+
+    public void prune(double sparsity) {
+        if (sparsity < 0 || sparsity >= 1)
+            throw new IllegalArgumentException("Розрідженість має бути в межах [0, 1): " + sparsity);
+
+        for (int l = 0; l < this.structure.length - 1; l++) {
+            Layer layer = this.layers[l];
+            double[][] weights = layer.sparseWeights != null ? layer.sparseWeights.toWeights() : layer.weights;
+
+            int cl_size = this.structure[l];
+            int nl_size = this.structure[l + 1];
+            int toPrune = (int) (sparsity * cl_size * nl_size);
+
+            if (toPrune > 0) {
+                double[] magnitudes = new double[cl_size * nl_size];
+                int i = 0;
+                for (double[] row : weights) {
+                    for (double w : row) {
+                        magnitudes[i++] = Math.abs(w);
+                    }
+                }
+                Arrays.sort(magnitudes);
+                double threshold = magnitudes[toPrune - 1];
+
+                int pruned = 0;
+                for (double[] row : weights) {
+                    for (int nl = 0; nl < nl_size; nl++) {
+                        if (Math.abs(row[nl]) < threshold) {
+                            row[nl] = 0;
+                            pruned++;
+                        }
+                    }
+                }
+                for (double[] row : weights) {
+                    for (int nl = 0; nl < nl_size && pruned < toPrune; nl++) {
+                        if (row[nl] != 0 && Math.abs(row[nl]) == threshold) {
+                            row[nl] = 0;
+                            pruned++;
+                        }
+                    }
+                }
+            }
+
+            layer.sparseWeights = SparseMatrix.fromWeights(weights);
+            layer.weights = null;
+        }
+    }
+
+    public int countWeights() {
+        int count = 0;
+        for (int l = 0; l < this.structure.length - 1; l++) {
+            Layer layer = this.layers[l];
+            if (layer.sparseWeights != null) {
+                count += layer.sparseWeights.nonZeros();
+            } else {
+                for (double[] row : layer.weights) {
+                    for (double w : row) {
+                        if (w != 0) count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
     public double activation(double x) {
         return 2 / (1 + Math.exp(-x)) - 1;
     }
@@ -151,9 +281,12 @@ public class NeuralNetwork implements Serializable {
 }
 
 class Layer implements Serializable {
+    private static final long serialVersionUID = 1654713319942101212L;
+
     public double[] neurons;
     public double[][] weights;
     public double[] biases;
+    public SparseMatrix sparseWeights;
 
     public Layer(double[] n) {
         this.neurons = n;
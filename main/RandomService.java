@@ -0,0 +1,31 @@
+import java.util.SplittableRandom;
+
+// Усі випадкові числа в програмі походять з одного головного зерна. Сервіс належить
+// одному потоку, що розподіляє роботу: лише він викликає split(), а кожен робочий потік
+// чи фрагмент роботи отримує власний незалежний потік, тож робочі потоки не ділять
+// спільного стану, а результат не залежить від того, який потік виконав фрагмент.
+public class RandomService {
+    public final long seed;
+    private final SplittableRandom master;
+
+    public RandomService(long seed) {
+        this.seed = seed;
+        this.master = new SplittableRandom(seed);
+    }
+
+    public RandomService() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    public SplittableRandom split() {
+        return this.master.split();
+    }
+
+    public SplittableRandom[] split(int count) {
+        SplittableRandom[] streams = new SplittableRandom[count];
+        for (int i = 0; i < count; i++) {
+            streams[i] = this.master.split();
+        }
+        return streams;
+    }
+}
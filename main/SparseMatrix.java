@@ -0,0 +1,84 @@
+import java.io.Serializable;
+
+public class SparseMatrix implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public int rows;
+    public int columns;
+    public double[] values;
+    public int[] columnIndices;
+    public int[] rowPointers;
+
+    public SparseMatrix(int rows, int columns, double[] values, int[] columnIndices, int[] rowPointers) {
+        this.rows = rows;
+        this.columns = columns;
+        this.values = values;
+        this.columnIndices = columnIndices;
+        this.rowPointers = rowPointers;
+    }
+
+    // Рядки CSR відповідають нейронам наступного шару, стовпці - нейронам поточного,
+    // тобто матриця зберігається транспонованою відносно Layer.weights[cl][nl].
+    public static SparseMatrix fromWeights(double[][] weights) {
+        int cl_size = weights.length;
+        int nl_size = cl_size > 0 ? weights[0].length : 0;
+
+        int nonZeros = 0;
+        for (double[] row : weights) {
+            for (double w : row) {
+                if (w != 0) nonZeros++;
+            }
+        }
+
+        double[] values = new double[nonZeros];
+        int[] columnIndices = new int[nonZeros];
+        int[] rowPointers = new int[nl_size + 1];
+
+        int k = 0;
+        for (int nl = 0; nl < nl_size; nl++) {
+            rowPointers[nl] = k;
+            for (int cl = 0; cl < cl_size; cl++) {
+                double w = weights[cl][nl];
+                if (w != 0) {
+                    values[k] = w;
+                    columnIndices[k] = cl;
+                    k++;
+                }
+            }
+        }
+        rowPointers[nl_size] = k;
+
+        return new SparseMatrix(nl_size, cl_size, values, columnIndices, rowPointers);
+    }
+
+    public double[][] toWeights() {
+        double[][] weights = new double[this.columns][this.rows];
+
+        for (int nl = 0; nl < this.rows; nl++) {
+            for (int k = this.rowPointers[nl]; k < this.rowPointers[nl + 1]; k++) {
+                weights[this.columnIndices[k]][nl] = this.values[k];
+            }
+        }
+
+        return weights;
+    }
+
+    public void multiply(double[] vector, double[] result) {
+        for (int row = 0; row < this.rows; row++) {
+            double sum = 0;
+            for (int k = this.rowPointers[row]; k < this.rowPointers[row + 1]; k++) {
+                sum += this.values[k] * vector[this.columnIndices[k]];
+            }
+            result[row] = sum;
+        }
+    }
+
+    public int nonZeros() {
+        return this.values.length;
+    }
+
+    public double density() {
+        int size = this.rows * this.columns;
+        return size == 0 ? 0 : (double) nonZeros() / size;
+    }
+}